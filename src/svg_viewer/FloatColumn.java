@@ -0,0 +1,114 @@
+// Columna de floats que crece según se necesite, dentro del heap (float[]) o fuera de él (FloatBuffers directos)
+package svg_viewer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/*
+ Fuera del heap los valores se guardan en bloques de BLOCK valores: un solo ByteBuffer no puede
+ pasar de 2 GB y así, al crecer, solo se copia el último bloque. Las dos formas llegan hasta
+ MAX_CAPACITY valores; si se pide uno más, add() lanza IllegalStateException.
+*/
+class FloatColumn {
+
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;  // Arreglo más grande que acepta la JVM
+
+    private static final int BLOCK_SHIFT = 20;
+    private static final int BLOCK = 1 << BLOCK_SHIFT;      // Valores por bloque (4 MB)
+    private static final int BLOCK_MASK = BLOCK - 1;
+
+    private float[] heap;          // Valores dentro del heap
+    private FloatBuffer[] blocks;  // Valores fuera del heap (null si se usa heap)
+    private int size;
+
+    FloatColumn(boolean offHeap) {
+        if (offHeap) {
+            blocks = new FloatBuffer[]{allocate(16)};
+        } else {
+            heap = new float[16];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    float get(int i) {
+        return heap != null ? heap[i] : blocks[i >>> BLOCK_SHIFT].get(i & BLOCK_MASK);
+    }
+
+    void add(float value) {
+        if (size == capacity()) {
+            grow();
+        }
+        if (heap != null) {
+            heap[size] = value;
+        } else {
+            blocks[size >>> BLOCK_SHIFT].put(size & BLOCK_MASK, value);
+        }
+        size++;
+    }
+
+    // Libera el espacio sobrante una vez que ya no se agregan valores
+    void compact() {
+        if (heap != null) {
+            if (size < heap.length) {
+                heap = Arrays.copyOf(heap, size);
+            }
+            return;
+        }
+
+        int used = (int) Math.max(1, ((long) size + BLOCK_MASK) >>> BLOCK_SHIFT);
+        blocks = Arrays.copyOf(blocks, used);
+        int rest = size - (used - 1) * BLOCK;  // Valores en el último bloque
+        if (rest < blocks[used - 1].capacity()) {
+            blocks[used - 1] = copy(blocks[used - 1], rest, rest);
+        }
+    }
+
+    private long capacity() {
+        if (heap != null) {
+            return heap.length;
+        }
+        int last = blocks.length - 1;
+        return (long) last * BLOCK + blocks[last].capacity();
+    }
+
+    // Crece a 1.5 veces (en long, para que no se desborde), sin pasar de MAX_CAPACITY
+    private void grow() {
+        if (size >= MAX_CAPACITY) {
+            throw new IllegalStateException("La columna ya tiene " + MAX_CAPACITY + " valores");
+        }
+
+        if (heap != null) {
+            heap = Arrays.copyOf(heap, (int) Math.min(MAX_CAPACITY, Math.max(16L, (long) size + (size >> 1))));
+            return;
+        }
+
+        int last = blocks.length - 1;
+        int lastCapacity = blocks[last].capacity();
+        if (lastCapacity < BLOCK) {
+            // El último bloque todavía no está completo: crece copiándose
+            int capacity = Math.min(BLOCK, Math.max(16, lastCapacity + (lastCapacity >> 1)));
+            blocks[last] = copy(blocks[last], capacity, lastCapacity);
+        } else {
+            blocks = Arrays.copyOf(blocks, blocks.length + 1);
+            blocks[last + 1] = allocate(BLOCK);
+        }
+    }
+
+    // Nuevo buffer de capacity valores con los primeros count valores de old
+    private static FloatBuffer copy(FloatBuffer old, int capacity, int count) {
+        FloatBuffer copy = allocate(capacity);
+        FloatBuffer values = old.duplicate();
+        values.position(0).limit(count);
+        copy.put(values);
+        return copy;
+    }
+
+    private static FloatBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+}
@@ -15,11 +15,16 @@ package svg_viewer;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.imageio.ImageWriter;
 import javax.swing.JFileChooser;
 import javax.swing.JInternalFrame;
+import javax.swing.JOptionPane;
 import javax.swing.JScrollPane;
+import javax.swing.ProgressMonitor;
+import javax.swing.SwingWorker;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -45,6 +50,7 @@ public class SVGApplication extends javax.swing.JFrame {
         openMenuItem = new javax.swing.JMenuItem();
         saveMenuItem = new javax.swing.JMenuItem();
         saveAsMenuItem = new javax.swing.JMenuItem();
+        exportMenuItem = new javax.swing.JMenuItem();
         exitMenuItem = new javax.swing.JMenuItem();
         editMenu = new javax.swing.JMenu();
         cutMenuItem = new javax.swing.JMenuItem();
@@ -78,6 +84,15 @@ public class SVGApplication extends javax.swing.JFrame {
         saveAsMenuItem.setDisplayedMnemonicIndex(5);
         fileMenu.add(saveAsMenuItem);
 
+        exportMenuItem.setMnemonic('e');
+        exportMenuItem.setText("Export ...");
+        exportMenuItem.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                exportMenuItemActionPerformed(evt);
+            }
+        });
+        fileMenu.add(exportMenuItem);
+
         exitMenuItem.setMnemonic('x');
         exitMenuItem.setText("Exit");
         exitMenuItem.addActionListener(new java.awt.event.ActionListener() {
@@ -165,30 +180,22 @@ public class SVGApplication extends javax.swing.JFrame {
             File file = fc.getSelectedFile();
             System.out.println(file);
 
-            // Con el archivo seleccionado, crear un documento DOM (para a partir de ahí dibujar las figuras)
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = null;
-            try {
-                dBuilder = dbFactory.newDocumentBuilder(); // Validar y cargar documento svg 
-            } catch (ParserConfigurationException ex) {
-                Logger.getLogger(SVGApplication.class.getName()).log(Level.SEVERE, null, ex);
-            }
-
-            Document doc = null;
-            try {
-                doc = dBuilder.parse(file);
-                doc.getDocumentElement().normalize();
-
-            } catch (SAXException | IOException ex) {
-                Logger.getLogger(SVGApplication.class.getName()).log(Level.SEVERE, null, ex);
-            }
-
             // Crear la ventana para mostrar el dibujo SVG
             JInternalFrame intFrame;
             intFrame = new JInternalFrame(file.getName(), true, true, true, true);
 
-            // Instancia con del documento DOM, crear el componente gráfico
-            SVGDiagram svg = new SVGDiagram(doc);
+            // Crear el componente gráfico a partir del archivo
+            SVGDiagram svg;
+            try {
+                svg = loadDiagram(file);
+            } catch (IOException ex) {
+                Logger.getLogger(SVGApplication.class.getName()).log(Level.SEVERE, null, ex);
+                JOptionPane.showMessageDialog(this, "No se pudo abrir " + file.getName() + ": " + ex.getMessage(),
+                        "Abrir", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            intFrame.putClientProperty(SVGDiagram.class, svg);  // Para exportarlo después
+            intFrame.putClientProperty(File.class, file);
 
             // Agregar scroll bars al dibujo
             JScrollPane scrollPane = new JScrollPane(svg);
@@ -206,6 +213,128 @@ public class SVGApplication extends javax.swing.JFrame {
         }
     }//GEN-LAST:event_openMenuItemActionPerformed
 
+    // Carga el archivo SVG y crea el componente gráfico (IOException si no se puede leer ni interpretar)
+    static SVGDiagram loadDiagram(File file) throws IOException {
+        // Primero intentar la carga rápida (archivo mapeado en memoria, sin DOM)
+        SVGScene scene = SVGLoader.load(file);
+        if (scene != null) {
+            return new SVGDiagram(scene);
+        }
+
+        // Con el archivo seleccionado, crear un documento DOM (para a partir de ahí dibujar las figuras)
+        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
+        Document doc;
+        try {
+            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder(); // Validar y cargar documento svg 
+            doc = dBuilder.parse(file);
+            doc.getDocumentElement().normalize();
+
+        } catch (ParserConfigurationException | SAXException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+
+        // Instancia con del documento DOM, crear el componente gráfico
+        return new SVGDiagram(doc);
+    }
+
+    private void exportMenuItemActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_exportMenuItemActionPerformed
+        // Exportar el dibujo de la ventanita seleccionada
+        JInternalFrame intFrame = desktopPane.getSelectedFrame();
+        if (intFrame == null) {
+            JOptionPane.showMessageDialog(this, "Primero abra un dibujo SVG", "Exportar", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        SVGDiagram svg = (SVGDiagram) intFrame.getClientProperty(SVGDiagram.class);
+        File source = (File) intFrame.getClientProperty(File.class);
+
+        // Escala de la imagen (1 = mismo tamaño que en pantalla)
+        String answer = JOptionPane.showInputDialog(this, "Escala", "1.0");
+        if (answer == null) {
+            return;
+        }
+        double scale;
+        try {
+            scale = Double.parseDouble(answer);
+        } catch (NumberFormatException ex) {
+            scale = 0;
+        }
+        if (!(scale > 0)) {
+            JOptionPane.showMessageDialog(this, "Escala inválida: " + answer, "Exportar", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        final JFileChooser fc = new JFileChooser();
+        fc.setCurrentDirectory(new File(System.getProperty("user.dir")));
+        fc.setDialogTitle("Exportar Imagen");
+        fc.setAcceptAllFileFilterUsed(false);
+        fc.addChoosableFileFilter(new FileNameExtensionFilter("Imagen PNG", "png"));
+        fc.addChoosableFileFilter(new FileNameExtensionFilter("Imagen TIFF", "tif", "tiff"));
+
+        if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        // Agregar la extensión del filtro seleccionado si no se escribió
+        File selected = fc.getSelectedFile();
+        FileNameExtensionFilter filter = (FileNameExtensionFilter) fc.getFileFilter();
+        if (!filter.accept(selected)) {
+            selected = new File(selected.getPath() + "." + filter.getExtensions()[0]);
+        }
+        final File file = selected;
+        final double exportScale = scale;
+
+        // Exportar en segundo plano, mostrando el avance
+        final ProgressMonitor progress = new ProgressMonitor(this, "Exportando " + file.getName(), null, 0, 100);
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            // Se guarda al abortar: después de progress.close() isCanceled() ya no lo indica
+            private volatile boolean canceled;
+
+            @Override
+            protected Void doInBackground() throws Exception {
+                // El DOM de la ventana no se puede dibujar desde este hilo: se exporta una copia cargada aparte
+                SVGDiagram diagram = svg.isShareable() ? svg : loadDiagram(source);
+                SVGExporter.export(diagram, exportScale, file, new SVGExporter.Progress() {
+                    @Override
+                    public void imageProgress(ImageWriter source, float percentageDone) {
+                        setProgress(Math.min(100, (int) percentageDone));
+                        if (progress.isCanceled()) {
+                            canceled = true;
+                            source.abort();
+                        }
+                    }
+
+                    @Override
+                    public void writeAborted(ImageWriter source) {
+                        canceled = true;
+                    }
+                });
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                progress.close();
+                try {
+                    get();
+                    if (canceled) {
+                        file.delete();                   // No dejar una imagen a medias
+                    }
+                } catch (InterruptedException | ExecutionException ex) {
+                    file.delete();
+                    Logger.getLogger(SVGApplication.class.getName()).log(Level.SEVERE, null, ex);
+                    JOptionPane.showMessageDialog(SVGApplication.this, "No se pudo exportar " + file.getName(),
+                            "Exportar", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        worker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progress.setProgress((Integer) e.getNewValue());
+            }
+        });
+        worker.execute();
+    }//GEN-LAST:event_exportMenuItemActionPerformed
+
     public static void main(String args[]) {
         /* Set the Nimbus look and feel */
         //<editor-fold defaultstate="collapsed" desc=" Look and feel setting code (optional) ">
@@ -237,6 +366,7 @@ public class SVGApplication extends javax.swing.JFrame {
     private javax.swing.JDesktopPane desktopPane;
     private javax.swing.JMenu editMenu;
     private javax.swing.JMenuItem exitMenuItem;
+    private javax.swing.JMenuItem exportMenuItem;
     private javax.swing.JMenu fileMenu;
     private javax.swing.JMenu helpMenu;
     private javax.swing.JMenuBar menuBar;
@@ -1,22 +1,18 @@
 // Clase en la que se dibujará
 package svg_viewer;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Shape;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Line2D;
-import java.awt.geom.Rectangle2D;
-import java.awt.geom.RoundRectangle2D;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Properties;
-import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.w3c.dom.Document;
@@ -29,10 +25,11 @@ public class SVGDiagram extends JComponent {
 
     private final Document doc; // Documento DOM con los componentes del dibujo
     private final Element root; // Elemento raiz (SVG)
+    private final SVGScene scene; // Figuras ya interpretadas por SVGLoader (null si se usa el DOM)
     private final int svgW;     // ancho del dibujo
     private final int svgH;     // alto del dibujo
 
-    private Properties webColors; // Permite almacenar y recuperar propiedades en dado caso que quiera cambiar parámetros o variables en mi app
+    private static Properties webColors; // Permite almacenar y recuperar propiedades en dado caso que quiera cambiar parámetros o variables en mi app
 
     public SVGDiagram(Document svgDoc) {
         super();
@@ -40,6 +37,7 @@ public class SVGDiagram extends JComponent {
         doc = svgDoc;
 
         root = doc.getDocumentElement();  // Raíz del documento
+        scene = null;
 
         // establecer dimensiones del dibujo
         svgW = Integer.parseInt(root.getAttribute("width"));
@@ -47,24 +45,42 @@ public class SVGDiagram extends JComponent {
 
         // establecer colorCode de fondo
         this.setBackground(Color.white);
+    }
 
-        loadColors();
+    // Dibujo cargado por SVGLoader, sin pasar por el DOM
+    public SVGDiagram(SVGScene svgScene) {
+        super();
+
+        doc = null;
+        root = null;
+        scene = svgScene;
+
+        svgW = scene.getWidth();
+        svgH = scene.getHeight();
+
+        this.setBackground(Color.white);
     }
 
     // Método para cargar el archivo colors.properties al objeto Properties
-    private void loadColors() {
+    private static synchronized void loadColors() {
+        if (webColors != null) {
+            return;                           // Ya se cargó antes
+        }
+
+        // Si el archivo no se puede leer, la paleta queda vacía: los nombres de color no se reconocen
+        Properties colors = new Properties(); // Crear el objeto properties
         try {
             String userDir = System.getProperty("user.dir");                      // Directorio por default
             FileReader reader = new FileReader(userDir + "/colors.properties");   // Ubicación del archivo
 
-            webColors = new Properties();     // Crear el objeto properties
-            webColors.load(reader);           // Se carga a partir del archivo colors
+            colors.load(reader);              // Se carga a partir del archivo colors
 
         } catch (FileNotFoundException ex) {
             Logger.getLogger(SVGApplication.class.getName()).log(Level.SEVERE, null, ex);
         } catch (IOException ex) {
             Logger.getLogger(SVGApplication.class.getName()).log(Level.SEVERE, null, ex);
         }
+        webColors = colors;
     }
 
     // Pinta el dibujo cada vez que se requiera
@@ -79,7 +95,24 @@ public class SVGDiagram extends JComponent {
 
         // Pintar un rectángulo en toda el área
         g2.fillRect(0, 0, getWidth(), getHeight());
-        
+
+        paintFigures(g2);
+    }
+
+    // Dibuja las figuras sobre el fondo ya pintado
+    void paintFigures(Graphics2D g2) {
+        paintFigures(g2, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    // Dibuja las figuras que tocan la franja horizontal [top, bottom] del dibujo (la usa SVGExporter).
+    // Con el DOM se recorren todas: lo que queda fuera de la franja lo recorta Java2D
+    void paintFigures(Graphics2D g2, double top, double bottom) {
+        // Dibujo cargado sin DOM: las figuras ya están interpretadas
+        if (scene != null) {
+            scene.paint(g2, top, bottom);
+            return;
+        }
+
         // Obtener cada una de las figuras del dibujo
         NodeList list = root.getChildNodes();
         
@@ -95,24 +128,30 @@ public class SVGDiagram extends JComponent {
                 String name = element.getTagName();
 
                 if (name.equals("line")) {
-                    drawLine(element, g);     // dibujar una linea
+                    drawLine(element, g2);     // dibujar una linea
                 }
                 if (name.equals("rect")) {
-                    drawRect(element, g);     // dibujar un rectángulo/cuadrado
+                    drawRect(element, g2);     // dibujar un rectángulo/cuadrado
                 }
                 if (name.equals("text")) {
-                    drawText(element, g);     // dibujar texto
+                    drawText(element, g2);     // dibujar texto
                 }
                 if (name.equals("circle") || name.equals("ellipse")) {
-                    drawEllipse(element, g);  // dibujar circulo
+                    drawEllipse(element, g2);  // dibujar circulo
                 }
                 if (name.equals("polyline")) {
-                    drawPolyLine(element, g);  // dibujar polyline
+                    drawPolyLine(element, g2);  // dibujar polyline
                 }
             }
         }
     }
 
+    // Las figuras de una escena no cambian después de cargarse y se pueden dibujar desde otro hilo;
+    // el DOM no (además guarda fuentes y colores en sus elementos al dibujar)
+    boolean isShareable() {
+        return scene != null;
+    }
+
     @Override
     public Dimension getPreferredSize() {
         return new Dimension(svgW, svgH);
@@ -124,15 +163,14 @@ public class SVGDiagram extends JComponent {
         // Grosor de línea
         if (line.hasAttribute("stroke-width")) {
             float sw = Float.parseFloat(line.getAttribute("stroke-width")); // Especificar grosor de linea
-            g2d.setStroke(new BasicStroke(sw));                             // Asignarle el grosor indicado
+            g2d.setStroke(ShapePool.get().stroke(sw));                      // Asignarle el grosor indicado
         } else {
-            g2d.setStroke(new BasicStroke(1));                              // Grosor por default: 1 pixel
+            g2d.setStroke(ShapePool.get().stroke(1));                       // Grosor por default: 1 pixel
         }
 
         // Color particular (RGB, red-green-blue)
         if (line.hasAttribute("stroke")) {
-            String colorCode = line.getAttribute("stroke"); // Especificar colorCode de linea
-            g2d.setColor(webColor(colorCode));
+            g2d.setColor(elementColor(line, "stroke"));
         } else {
             g2d.setColor(Color.BLACK);                      // colorCode por default
         }
@@ -145,7 +183,9 @@ public class SVGDiagram extends JComponent {
         int y2 = (int) Double.parseDouble(line.getAttribute("y2"));
 
         // Dibujar línea
-        g2d.draw(new Line2D.Double(x1, y1, x2, y2));
+        Line2D.Double shape = ShapePool.get().line;
+        shape.setLine(x1, y1, x2, y2);
+        g2d.draw(shape);
     }
 
     private void drawRect(Element rect, Graphics g) {
@@ -179,6 +219,17 @@ public class SVGDiagram extends JComponent {
             ry = Double.parseDouble(rect.getAttribute("ry"));
         }
         
+        // Figura reutilizable (no se crea una nueva en cada repintado)
+        ShapePool pool = ShapePool.get();
+        Shape shape;
+        if (rect.hasAttribute("rx") && rect.hasAttribute("ry")) {           // Verificar si tiene esquinas redondeadas
+            pool.roundRect.setRoundRect(x, y, width, height, rx, ry);
+            shape = pool.roundRect;
+        } else {
+            pool.rect.setRect(x, y, width, height);
+            shape = pool.rect;
+        }
+
         // RELLENO
         
         if (rect.hasAttribute("fill")) {
@@ -186,23 +237,12 @@ public class SVGDiagram extends JComponent {
             
             // Si no es "none" rellenar del color definido
             if (!colorFill.equals("none")) {
-                g2d.setColor(webColor(colorFill));
- 
-                if (rect.hasAttribute("rx") && rect.hasAttribute("ry")) {   // Verificar si tiene esquinas redondeadas
-                    g2d.fill(new RoundRectangle2D.Double(x, y, width, height, rx, ry));
-                } else {
-                    g2d.fill(new Rectangle2D.Double(x, y, width, height));
-                }
-                
+                g2d.setColor(elementColor(rect, "fill"));
+                g2d.fill(shape);
             } 
         } else {                                                            // Si no tiene la etiqueta de relleno
             g2d.setColor(Color.BLACK);                                      // Relleno por default
-            
-            if (rect.hasAttribute("rx") && rect.hasAttribute("ry")) {       // Verificar si tiene esquinas redondeadas
-                g2d.fill(new RoundRectangle2D.Double(x, y, width, height, rx, ry));
-            } else {
-                g2d.fill(new Rectangle2D.Double(x, y, width, height));
-            }
+            g2d.fill(shape);
         }
         
         // CONTORNO
@@ -210,20 +250,15 @@ public class SVGDiagram extends JComponent {
         // Grosor del trazo
         if (rect.hasAttribute("stroke-width")) {
             float sw = Float.parseFloat(rect.getAttribute("stroke-width")); // Especificar grosor de linea
-            g2d.setStroke(new BasicStroke(sw));                             // Asignarle el grosor indicado
+            g2d.setStroke(ShapePool.get().stroke(sw));                      // Asignarle el grosor indicado
         } 
         
         // Color particular (RGB, red-green-blue)
         if (rect.hasAttribute("stroke")) {
-            String colorCode = rect.getAttribute("stroke");                 // Especificar colorCode de linea
-            g2d.setColor(webColor(colorCode));
+            g2d.setColor(elementColor(rect, "stroke"));
         } 
         
-        if (rect.hasAttribute("rx") && rect.hasAttribute("ry")) {           // Verificar si tiene esquinas redondeadas
-            g2d.draw(new RoundRectangle2D.Double(x, y, width, height, rx, ry));
-        } else {
-            g2d.draw(new Rectangle2D.Double(x, y, width, height));
-        }
+        g2d.draw(shape);
     }
 
     private void drawEllipse(Element ellipse, Graphics g) {
@@ -253,6 +288,14 @@ public class SVGDiagram extends JComponent {
             ry = Double.parseDouble(ellipse.getAttribute("ry"));
         }
 
+        // Solo se dibuja la figura que el elemento tiene: elipse (rx, ry) o círculo (r)
+        Ellipse2D.Double shape = ShapePool.get().ellipse;
+        if (ellipse.hasAttribute("rx")) {
+            shape.setFrame(cx - rx, cy - ry, rx * 2, ry * 2);                     // Elipse
+        } else {
+            shape.setFrame(cx - r, cy - r, r * 2, r * 2);                         // Círculo
+        }
+
         // RELLENO
         
         if (ellipse.hasAttribute("fill")) {
@@ -260,20 +303,13 @@ public class SVGDiagram extends JComponent {
             
             // Si no es "none" rellenar del color definido
             if (!colorFill.equals("none")) {
-                g2d.setColor(webColor(colorFill));
- 
-                g2d.fill(new Ellipse2D.Double(cx - rx, cy - ry, rx * 2, ry * 2)); // Dibujar elipse
-                g2d.fill(new Ellipse2D.Double(cx - r, cy - r, r * 2, r * 2));     // Dibujar círculo                
+                g2d.setColor(elementColor(ellipse, "fill"));
+                g2d.fill(shape);
             } 
             
         } else {                                                                  // Si no tiene la etiqueta de relleno
             g2d.setColor(Color.BLACK);                                            // Relleno por default
-          
-            if (ellipse.hasAttribute("rx")) {
-                g2d.fill(new Ellipse2D.Double(cx - rx, cy - ry, rx * 2, ry * 2)); // Dibujar elipse
-            } else {
-                g2d.fill(new Ellipse2D.Double(cx - r, cy - r, r * 2, r * 2));     // Dibujar círculo
-            }
+            g2d.fill(shape);
         }
 
         // CONTORNO
@@ -281,17 +317,15 @@ public class SVGDiagram extends JComponent {
         // Grosor de línea
         if (ellipse.hasAttribute("stroke-width")) {
             float sw = Float.parseFloat(ellipse.getAttribute("stroke-width"));// Especificar grosor
-            g2d.setStroke(new BasicStroke(sw));                               // Asignarle el grosor indicado
+            g2d.setStroke(ShapePool.get().stroke(sw));                        // Asignarle el grosor indicado
         } 
 
         // Color particular (RGB, red-green-blue)
         if (ellipse.hasAttribute("stroke")) {
-            String colorCode = ellipse.getAttribute("stroke");                // Especificar colorCode
-            g2d.setColor(webColor(colorCode));
+            g2d.setColor(elementColor(ellipse, "stroke"));
         }
             
-        g2d.draw(new Ellipse2D.Double(cx - rx, cy - ry, rx * 2, ry * 2));     // Dibujar elipse
-        g2d.draw(new Ellipse2D.Double(cx - r, cy - r, r * 2, r * 2));         // Dibujar círculo
+        g2d.draw(shape);
     }
 
     private void drawText(Element text, Graphics g) {
@@ -310,13 +344,27 @@ public class SVGDiagram extends JComponent {
             
             // Si no es "none" rellenar del color definido
             if (!colorFill.equals("none")) {
-                g2d.setColor(webColor(colorFill));
+                g2d.setColor(elementColor(text, "fill"));
             } 
             
         } else {                                                           // Si no tiene la etiqueta de relleno
             g2d.setColor(Color.BLACK);                                     // Relleno por default
         }
 
+        // Crear fuente (solo la primera vez; después se reutiliza la guardada en el elemento)
+        Font font = (Font) text.getUserData("font");
+        if (font == null) {
+            font = textFont(text);
+            text.setUserData("font", font, null);
+        }
+        g2d.setFont(font);
+        
+        // Dibujar texto
+        g2d.drawString(texto, x, y); 
+    } 
+
+    // Fuente de un elemento text a partir de sus atributos font-*
+    private static Font textFont(Element text) {
         int size = 0;
         if (text.hasAttribute("font-size")) {
             String fontSize = text.getAttribute("font-size");
@@ -348,15 +396,21 @@ public class SVGDiagram extends JComponent {
         
 
         // Crear fuente
-        Font font = new Font(fontFamily, weight | style, size);
-        g2d.setFont(font);
-        
-        // Dibujar texto
-        g2d.drawString(texto, x, y); 
-    } 
+        return new Font(fontFamily, weight | style, size);
+    }
+
+    // Color de un atributo (fill o stroke), convertido una sola vez y guardado en el elemento
+    private static Color elementColor(Element element, String attribute) {
+        Color color = (Color) element.getUserData(attribute);
+        if (color == null) {
+            color = webColor(element.getAttribute(attribute));
+            element.setUserData(attribute, color, null);
+        }
+        return color;
+    }
     
     // Método para asignarle el font-family de xml a java (Text)
-    private String fontFamily(String tipo) {
+    static String fontFamily(String tipo) {
         String font = null;
         if (tipo.equalsIgnoreCase("serif")) {
             font = "SERIF";
@@ -371,7 +425,7 @@ public class SVGDiagram extends JComponent {
     }
     
     // Método para asignarle el font-weight de xml a java (Text)
-    private int fontWeight(String tipo) {
+    static int fontWeight(String tipo) {
         int font = 0;
         if (tipo.equals("normal")) {
             font = 0;
@@ -383,7 +437,7 @@ public class SVGDiagram extends JComponent {
     }
     
     // Método para asignarle el font-style de xml a java (Text)
-    private int fontStyle(String tipo) {
+    static int fontStyle(String tipo) {
         int font = 0;
         if (tipo.equalsIgnoreCase("italic")) {
             font = 2;
@@ -397,13 +451,12 @@ public class SVGDiagram extends JComponent {
         // Grosor de línea
         if (polyLine.hasAttribute("stroke-width")) {
             float sw = Float.parseFloat(polyLine.getAttribute("stroke-width"));// Especificar grosor
-            g2d.setStroke(new BasicStroke(sw));                               // Asignarle el grosor indicado
+            g2d.setStroke(ShapePool.get().stroke(sw));                        // Asignarle el grosor indicado
         } 
 
         // Color particular (RGB, red-green-blue)
         if (polyLine.hasAttribute("stroke")) {
-            String colorCode = polyLine.getAttribute("stroke");                // Especificar colorCode
-            g2d.setColor(webColor(colorCode));
+            g2d.setColor(elementColor(polyLine, "stroke"));
         }
         
         // Tomar puntos (coordenadas)
@@ -412,37 +465,38 @@ public class SVGDiagram extends JComponent {
             points = polyLine.getAttribute("points");
         }
         
-        // Dividir coordenadas
-        Scanner scan = new Scanner(points);
-        scan.useDelimiter(" ");                          // Dividir por espacios
-        
-        ArrayList<String> listaPuntos = new ArrayList(); // ArrayList para evitar definir el tamaño de un array
-        while (scan.hasNext()) {
-            String punto = scan.next();
-            listaPuntos.add(punto);          // Agregar cada coordenada al ArrayList
-        }
+        // Dividir coordenadas "x,y x,y ..." sin crear Strings intermedios
+        int len = points.length();
+        int[] x = ShapePool.get().xs(len / 4 + 1);         // Array para posiciones en x (cada punto ocupa al menos "x,y ")
+        int[] y = ShapePool.get().ys(len / 4 + 1);         // Array para posiciones en y
+
+        int n = 0;                                         // No. de coordenadas
+        int start = 0;
+        while (start < len) {
+            int end = points.indexOf(' ', start);          // Dividir por espacios
+            if (end < 0) {
+                end = len;
+            }
 
-        int n = listaPuntos.size();          // No. de coordenadas
-        int x[] = new int[n];                // Array para posiciones en x
-        int y[] = new int[n];                // Array para posiciones en y
-        
-        int index = 0;
-        while(index < n) {                  
-            String punto = listaPuntos.get(index); // Tomar cada coordenada del arrayList
-        
-            Scanner t = new Scanner(punto);
-            t.useDelimiter(",");                   // Dividir posición x y posición y
-            
-            x[index] = t.nextInt();                // Almacenar en arrays
-            y[index] = t.nextInt();
-                         
-            index++;
+            if (end > start) {
+                int comma = points.indexOf(',', start);    // Dividir posición x y posición y
+                if (comma < 0) {
+                    comma = len;
+                }
+                x[n] = Integer.parseInt(points, start, Math.min(comma, end), 10); // Almacenar en arrays
+                y[n] = Integer.parseInt(points, Math.min(comma + 1, end), end, 10);
+                n++;
+            }
+
+            start = end + 1;
         }
         
         g2d.drawPolyline(x, y, n);
     }
 
-    private Color webColor(String colorString) {
+    static Color webColor(String colorString) {
+        loadColors();
+
         String colorCode = colorString.toLowerCase(); // Convertir a minúsculas
         Color newColor = null;
 
@@ -460,7 +514,11 @@ public class SVGDiagram extends JComponent {
                 return Color.BLACK;
             }
         } else {
-            colorCode = webColors.getProperty(colorCode).substring(1).trim();
+            String hex = webColors.getProperty(colorCode);
+            if (hex == null) {
+                return null;                            // Nombre de color desconocido
+            }
+            colorCode = hex.substring(1).trim();
         }
 
         // Sacar el valor que corresponde a cada color para crear el color indicado
@@ -0,0 +1,326 @@
+// Exporta un dibujo SVG a imagen (PNG o TIFF) a cualquier escala
+package svg_viewer;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Vector;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+
+/*
+ La imagen nunca se crea completa: se dibuja por franjas horizontales a medida que el ImageWriter
+ pide los renglones, y solo se conserva la franja actual. La memoria depende del tamaño de la
+ franja y no del tamaño de la imagen, así que se pueden exportar posters de 30000 x 30000 px.
+*/
+public class SVGExporter {
+
+    // Pixeles por franja (~16 MB en TYPE_INT_RGB)
+    private static final int STRIP_PIXELS = 4 * 1024 * 1024;
+
+    private SVGExporter() {
+    }
+
+    // El formato se toma de la extensión del archivo (png, tif, tiff)
+    public static void export(SVGDiagram diagram, double scale, File output) throws IOException {
+        export(diagram, scale, output, null);
+    }
+
+    public static void export(SVGDiagram diagram, double scale, File output, IIOWriteProgressListener listener)
+            throws IOException {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Escala inválida: " + scale);
+        }
+
+        String format = formatName(output);
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("No hay ImageWriter para el formato " + format);
+        }
+        ImageWriter writer = writers.next();
+
+        // Tamaño de la imagen final
+        int width = (int) Math.ceil(diagram.getPreferredSize().width * scale);
+        int height = (int) Math.ceil(diagram.getPreferredSize().height * scale);
+        StripImage image = new StripImage(diagram, scale, width, height);
+
+        output.delete();  // FileImageOutputStream no recorta un archivo existente
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            if (stream == null) {
+                throw new IOException("No se pudo crear " + output);
+            }
+            writer.setOutput(stream);
+            if (listener != null) {
+                writer.addIIOWriteProgressListener(listener);
+            }
+            writer.write(null, new IIOImage(image, null, null), writer.getDefaultWriteParam());
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static final String USAGE = "Uso: java -cp SVG_Viewer.jar svg_viewer.SVGExporter dibujo.svg imagen.png|imagen.tif [escala]";
+
+    /*
+     Exportar desde la línea de comandos, sin ventana. Esta clase no es un componente de AWT, así
+     que el modo headless se activa antes de que se cargue el Toolkit.
+    */
+    public static void main(String args[]) {
+        if (args.length < 2 || args.length > 3) {
+            usage();
+        }
+
+        System.setProperty("java.awt.headless", "true");  // No se necesita ventana
+
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        double scale = 1.0;
+        if (args.length == 3) {
+            try {
+                scale = Double.parseDouble(args[2]);
+            } catch (NumberFormatException ex) {
+                usage();
+            }
+        }
+        if (!(scale > 0)) {
+            usage();
+        }
+
+        if (!input.isFile()) {
+            System.err.println("No se encontró " + input);
+            System.exit(1);
+        }
+
+        try {
+            export(SVGApplication.loadDiagram(input), scale, output);
+        } catch (IOException ex) {
+            System.err.println("No se pudo exportar " + input + ": " + ex.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+
+    // Avance de la exportación: solo hay que implementar imageProgress()
+    public abstract static class Progress implements IIOWriteProgressListener {
+
+        @Override
+        public void imageStarted(ImageWriter source, int imageIndex) {
+        }
+
+        @Override
+        public void imageComplete(ImageWriter source) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageWriter source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageWriter source) {
+        }
+
+        @Override
+        public void writeAborted(ImageWriter source) {
+        }
+    }
+
+    private static String formatName(File output) {
+        String name = output.getName().toLowerCase();
+        if (name.endsWith(".tif") || name.endsWith(".tiff")) {
+            return "tiff";
+        }
+        return "png";
+    }
+
+    // Imagen que se dibuja por franjas cuando el ImageWriter pide sus pixeles
+    private static class StripImage implements RenderedImage {
+
+        private final SVGDiagram diagram;
+        private final double scale;
+        private final int width;
+        private final int height;
+        private final int stripHeight;
+
+        private final BufferedImage strip;  // Franja actual
+        private int current = -1;           // Número de la franja dibujada en strip
+
+        StripImage(SVGDiagram diagram, double scale, int width, int height) {
+            this.diagram = diagram;
+            this.scale = scale;
+            this.width = width;
+            this.height = height;
+
+            stripHeight = Math.max(1, Math.min(height, STRIP_PIXELS / Math.max(1, width)));
+            strip = new BufferedImage(width, stripHeight, BufferedImage.TYPE_INT_RGB);
+        }
+
+        private void render(int index) {
+            if (index == current) {
+                return;
+            }
+
+            Graphics2D g2 = strip.createGraphics();
+
+            // Fondo de la franja
+            g2.setColor(diagram.getBackground());
+            g2.fillRect(0, 0, width, stripHeight);
+
+            // Mover el dibujo para que la franja quede en (0, 0)
+            g2.translate(0, -index * stripHeight);
+            g2.scale(scale, scale);
+
+            // Solo las figuras que caen en la franja (en coordenadas del dibujo)
+            double top = (double) index * stripHeight / scale;
+            double bottom = (double) (index + 1) * stripHeight / scale;
+            diagram.paintFigures(g2, top, bottom);
+
+            g2.dispose();
+            current = index;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            render(tileY);
+            return strip.getRaster().createTranslatedChild(0, tileY * stripHeight);
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            SampleModel model = strip.getSampleModel().createCompatibleSampleModel(rect.width, rect.height);
+            WritableRaster raster = Raster.createWritableRaster(model, new Point(rect.x, rect.y));
+            return copyData(raster);
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                raster = (WritableRaster) getData();
+            }
+
+            // Copiar de cada franja que toca el rectángulo pedido
+            Rectangle bounds = raster.getBounds().intersection(new Rectangle(0, 0, width, height));
+            if (bounds.isEmpty()) {
+                return raster;
+            }
+            int first = bounds.y / stripHeight;
+            int last = (bounds.y + bounds.height - 1) / stripHeight;
+            for (int index = first; index <= last; index++) {
+                Raster tile = getTile(0, index);
+                Rectangle r = tile.getBounds().intersection(bounds);
+                raster.setRect(tile.createChild(r.x, r.y, r.width, r.height, r.x, r.y, null));
+            }
+            return raster;
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return strip.getColorModel();
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return strip.getSampleModel();
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + stripHeight - 1) / stripHeight;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return stripHeight;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,639 @@
+// Carga rápida de archivos SVG: mapea el archivo en memoria y recorre los bytes UTF-8 directamente
+package svg_viewer;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ Solo entiende el subconjunto de SVG que dibuja SVGDiagram (svg, line, rect, circle, ellipse,
+ polyline y text). Los nombres de elementos y atributos se comparan byte por byte y los atributos
+ numéricos se convierten directamente desde los bytes, sin crear Strings.
+
+ Si encuentra algo que no sabe manejar (DOCTYPE, CDATA, entidades, otra codificación, números
+ con unidades, etc.) se rinde y load() devuelve null, para que se use el DocumentBuilder normal.
+*/
+public class SVGLoader {
+
+    // Elementos reconocidos
+    private static final byte[] SVG = bytes("svg");
+    private static final byte[][] FIGURES = {
+        bytes("line"), bytes("rect"), bytes("circle"), bytes("ellipse"), bytes("polyline"), bytes("text")
+    };
+    private static final int LINE = 0, RECT = 1, CIRCLE = 2, ELLIPSE = 3, POLYLINE = 4, TEXT = 5;
+
+    // Atributos reconocidos (los primeros son numéricos)
+    private static final byte[][] ATTRIBUTES = {
+        bytes("x"), bytes("y"), bytes("width"), bytes("height"), bytes("rx"), bytes("ry"), bytes("r"),
+        bytes("cx"), bytes("cy"), bytes("x1"), bytes("y1"), bytes("x2"), bytes("y2"), bytes("stroke-width"),
+        bytes("font-size"), bytes("fill"), bytes("stroke"), bytes("points"), bytes("font-family"),
+        bytes("font-weight"), bytes("font-style")
+    };
+    private static final int X = 0, Y = 1, WIDTH = 2, HEIGHT = 3, RX = 4, RY = 5, R = 6, CX = 7, CY = 8,
+            X1 = 9, Y1 = 10, X2 = 11, Y2 = 12, STROKE_WIDTH = 13, FONT_SIZE = 14, FILL = 15, STROKE = 16,
+            POINTS = 17, FONT_FAMILY = 18, FONT_WEIGHT = 19, FONT_STYLE = 20;
+
+    private static final byte[] NONE = bytes("none");
+    private static final int BLACK = 0xff000000;
+    private static final byte[] ENCODING = bytes("encoding");
+
+    // Potencias de 10 que se representan exactamente en un double
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // Se lanza cuando el archivo tiene algo que este lector no maneja
+    private static class Unsupported extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super(null, null, false, false);  // Sin stack trace, solo sirve para salir
+        }
+    }
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+
+    private final MappedByteBuffer buf;  // Contenido del archivo
+    private final int end;               // Tamaño del archivo
+    private int pos;                     // Posición actual
+
+    private SVGScene scene;
+
+    // Último atributo leído
+    private int nameStart, nameEnd, valStart, valEnd;
+    private boolean selfClosing;         // La etiqueta terminó con "/>"
+
+    // Atributos de la figura actual
+    private final boolean[] has = new boolean[ATTRIBUTES.length];
+    private final double[] num = new double[FONT_SIZE + 1];
+    private final int[] strStart = new int[ATTRIBUTES.length];
+    private final int[] strEnd = new int[ATTRIBUTES.length];
+
+    private int[] coords = new int[64];  // Puntos del polyline (se reutiliza)
+
+    // Nombres de color ya convertidos (para no crear un String por cada figura)
+    private final byte[][] namedColors = new byte[16][];
+    private final int[] namedArgb = new int[16];
+    private int namedCount;
+
+    private SVGLoader(MappedByteBuffer buf) {
+        this.buf = buf;
+        this.end = buf.limit();
+    }
+
+    // Devuelve las figuras del archivo, o null si hay que usar el DocumentBuilder normal
+    public static SVGScene load(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                return null;                  // No cabe en un solo mapeo
+            }
+
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                return new SVGLoader(buf).parse();
+            } catch (Unsupported ex) {
+                return null;
+            } catch (IllegalStateException ex) {
+                return null;                  // Más valores de los que caben en una columna de SVGScene
+            }
+        }
+    }
+
+    private SVGScene parse() throws Unsupported {
+        // Saltar BOM de UTF-8
+        if (end >= 3 && (buf.get(0) & 0xff) == 0xef && (buf.get(1) & 0xff) == 0xbb && (buf.get(2) & 0xff) == 0xbf) {
+            pos = 3;
+        }
+
+        int depth = 0;
+        while (true) {
+            // Saltar el texto hasta la siguiente etiqueta
+            while (pos < end && buf.get(pos) != '<') {
+                pos++;
+            }
+            if (pos >= end) {
+                throw UNSUPPORTED;            // El elemento raíz no se cerró
+            }
+
+            byte next = at(pos + 1);
+            if (next == '?') {                // Declaración XML o instrucción de proceso
+                int close = indexOf('?', '>', pos + 2);
+                if (depth == 0) {
+                    checkEncoding(pos + 2, close);
+                }
+                pos = close + 2;
+                continue;
+            }
+            if (next == '!') {
+                if (at(pos + 2) == '-' && at(pos + 3) == '-') {  // Comentario
+                    pos = indexOf('-', '-', pos + 4);
+                    if (at(pos + 2) != '>') {
+                        throw UNSUPPORTED;
+                    }
+                    pos += 3;
+                    continue;
+                }
+                throw UNSUPPORTED;            // DOCTYPE, CDATA
+            }
+            if (next == '/') {                // Etiqueta de cierre
+                depth--;
+                pos = indexOf('>', pos + 2) + 1;
+                if (depth == 0) {
+                    scene.compact();
+                    return scene;
+                }
+                if (depth < 0) {
+                    throw UNSUPPORTED;
+                }
+                continue;
+            }
+
+            // Etiqueta de inicio
+            pos++;
+            int tagStart = pos;
+            while (!isNameEnd(at(pos))) {
+                pos++;
+            }
+            int tagEnd = pos;
+
+            if (depth == 0) {
+                if (scene != null || !matches(tagStart, tagEnd, SVG)) {
+                    throw UNSUPPORTED;
+                }
+                readSvg();
+                if (selfClosing) {
+                    return scene;
+                }
+            } else if (depth == 1) {
+                int kind = figureKind(tagStart, tagEnd);
+                if (kind >= 0) {
+                    readFigure(kind);
+                } else {
+                    skipAttributes();
+                }
+            } else {
+                skipAttributes();             // SVGDiagram solo dibuja los hijos directos de <svg>
+            }
+
+            if (!selfClosing) {
+                depth++;
+            }
+        }
+    }
+
+    private void readSvg() throws Unsupported {
+        int width = -1;
+        int height = -1;
+        while (nextAttribute()) {
+            if (matches(nameStart, nameEnd, ATTRIBUTES[WIDTH])) {
+                width = parseInt(valStart, valEnd);
+            } else if (matches(nameStart, nameEnd, ATTRIBUTES[HEIGHT])) {
+                height = parseInt(valStart, valEnd);
+            }
+        }
+        if (width < 0 || height < 0) {
+            throw UNSUPPORTED;
+        }
+        scene = new SVGScene(width, height);
+    }
+
+    private void readFigure(int kind) throws Unsupported {
+        Arrays.fill(has, false);
+        Arrays.fill(num, 0.0);
+
+        while (nextAttribute()) {
+            int id = attributeId();
+            if (id < 0) {
+                continue;
+            }
+            has[id] = true;
+            if (id < FONT_SIZE) {
+                num[id] = parseNumber(valStart, valEnd);
+            } else if (id == FONT_SIZE) {
+                num[id] = fontSize(valStart, valEnd);
+            } else {
+                strStart[id] = valStart;
+                strEnd[id] = valEnd;
+            }
+        }
+
+        float strokeWidth = has[STROKE_WIDTH] ? (float) num[STROKE_WIDTH] : Float.NaN;
+        int stroke = has[STROKE] ? color(strStart[STROKE], strEnd[STROKE]) : SVGScene.NO_COLOR;
+
+        switch (kind) {
+            case LINE:
+                if (!has[X1] || !has[Y1] || !has[X2] || !has[Y2]) {
+                    throw UNSUPPORTED;
+                }
+                scene.addLine(num[X1], num[Y1], num[X2], num[Y2],
+                        has[STROKE] ? stroke : BLACK,                // Color por default
+                        has[STROKE_WIDTH] ? strokeWidth : 1);        // Grosor por default: 1 pixel
+                break;
+            case RECT:
+                scene.addRect(num[X], num[Y], num[WIDTH], num[HEIGHT], num[RX], num[RY], has[RX] && has[RY],
+                        fill(), stroke, strokeWidth);
+                break;
+            case CIRCLE:
+            case ELLIPSE:
+                if (has[RX]) {
+                    scene.addEllipse(num[CX], num[CY], num[RX], num[RY], fill(), stroke, strokeWidth);
+                } else {
+                    scene.addEllipse(num[CX], num[CY], num[R], num[R], fill(), stroke, strokeWidth);
+                }
+                break;
+            case POLYLINE:
+                if (!has[POINTS]) {
+                    throw UNSUPPORTED;
+                }
+                int n = parsePoints(strStart[POINTS], strEnd[POINTS]);
+                scene.addPolyline(coords, n, stroke, strokeWidth);
+                break;
+            case TEXT:
+                readText();
+                break;
+        }
+    }
+
+    private void readText() throws Unsupported {
+        if (!has[X] || !has[Y] || selfClosing) {
+            throw UNSUPPORTED;
+        }
+
+        // El texto va hasta la etiqueta de cierre (sin tspan ni entidades)
+        int textStart = pos;
+        while (at(pos) != '<') {
+            pos++;
+        }
+        if (pos == textStart || at(pos + 1) != '/') {
+            throw UNSUPPORTED;
+        }
+        String text = string(textStart, pos);
+
+        String family = has[FONT_FAMILY] ? SVGDiagram.fontFamily(string(strStart[FONT_FAMILY], strEnd[FONT_FAMILY])) : null;
+        int weight = has[FONT_WEIGHT] ? SVGDiagram.fontWeight(string(strStart[FONT_WEIGHT], strEnd[FONT_WEIGHT])) : 0;
+        int style = has[FONT_STYLE] ? SVGDiagram.fontStyle(string(strStart[FONT_STYLE], strEnd[FONT_STYLE])) : 0;
+
+        Font font = new Font(family, weight | style, (int) num[FONT_SIZE]);
+        scene.addText(text, (int) num[X], (int) num[Y], font, fill());
+    }
+
+    // Color de relleno: negro si no se indicó, NO_COLOR si es "none"
+    private int fill() throws Unsupported {
+        if (!has[FILL]) {
+            return BLACK;
+        }
+        return color(strStart[FILL], strEnd[FILL]);
+    }
+
+    // Devuelve el color como ARGB; "none" es NO_COLOR (igual que el setColor(null) del DOM, que no cambia el color)
+    private int color(int start, int stop) throws Unsupported {
+        if (matches(start, stop, NONE)) {
+            return SVGScene.NO_COLOR;
+        }
+
+        // Códigos "#00ffff" y "0x00ffff" se leen directo de los bytes
+        if (stop - start == 7 && at(start) == '#') {
+            return 0xff000000 | hex(start + 1);
+        }
+        if (stop - start == 8 && at(start) == '0' && (at(start + 1) == 'x' || at(start + 1) == 'X')) {
+            return 0xff000000 | hex(start + 2);
+        }
+
+        // Nombres de color ya vistos en este archivo
+        for (int i = 0; i < namedCount; i++) {
+            if (matches(start, stop, namedColors[i])) {
+                return namedArgb[i];
+            }
+        }
+
+        // Nombres de color y demás formatos (si no se puede resolver, que lo intente el DOM)
+        Color color;
+        try {
+            color = SVGDiagram.webColor(string(start, stop));
+        } catch (RuntimeException ex) {
+            throw UNSUPPORTED;
+        }
+        if (color == null) {
+            throw UNSUPPORTED;
+        }
+        if (namedCount < namedColors.length) {
+            namedColors[namedCount] = new byte[stop - start];
+            buf.get(start, namedColors[namedCount]);
+            namedArgb[namedCount++] = color.getRGB();
+        }
+        return color.getRGB();
+    }
+
+    private int hex(int start) throws Unsupported {
+        int rgb = 0;
+        for (int i = start; i < start + 6; i++) {
+            int d = Character.digit(at(i), 16);
+            if (d < 0) {
+                throw UNSUPPORTED;
+            }
+            rgb = (rgb << 4) | d;
+        }
+        return rgb;
+    }
+
+    // Lee la lista "x,y x,y ..." en coords y devuelve el número de puntos
+    private int parsePoints(int start, int stop) throws Unsupported {
+        int count = 0;
+        int i = start;
+        while (true) {
+            while (i < stop && (isSpace(at(i)) || at(i) == ',')) {
+                i++;
+            }
+            if (i >= stop) {
+                break;
+            }
+            int tokenStart = i;
+            while (i < stop && !isSpace(at(i)) && at(i) != ',') {
+                i++;
+            }
+            if (count == coords.length) {
+                coords = Arrays.copyOf(coords, count * 2);
+            }
+            coords[count++] = (int) parseNumber(tokenStart, i);
+        }
+        if (count % 2 != 0) {
+            throw UNSUPPORTED;
+        }
+        return count / 2;
+    }
+
+    // font-size="24" o font-size="24px"
+    private int fontSize(int start, int stop) throws Unsupported {
+        if (stop - start > 2 && at(stop - 2) == 'p' && at(stop - 1) == 'x') {
+            stop -= 2;
+        }
+        return parseInt(start, stop);
+    }
+
+    private int parseInt(int start, int stop) throws Unsupported {
+        double value = parseNumber(start, stop);
+        if (value != (int) value) {
+            throw UNSUPPORTED;
+        }
+        return (int) value;
+    }
+
+    // Convierte un número decimal ("-12.5", "3e2") directamente desde los bytes
+    private double parseNumber(int start, int stop) throws Unsupported {
+        int i = start;
+        while (i < stop && isSpace(at(i))) {
+            i++;
+        }
+
+        boolean negative = false;
+        if (i < stop && (at(i) == '-' || at(i) == '+')) {
+            negative = at(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;       // Dígitos significativos guardados en mantissa
+        int exponent = 0;
+        boolean any = false;
+
+        while (i < stop && isDigit(at(i))) {
+            any = true;
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (at(i) - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+            }
+            i++;
+        }
+        if (i < stop && at(i) == '.') {
+            i++;
+            while (i < stop && isDigit(at(i))) {
+                any = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (at(i) - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                }
+                i++;
+            }
+        }
+        if (!any) {
+            throw UNSUPPORTED;
+        }
+
+        if (i < stop && (at(i) == 'e' || at(i) == 'E')) {
+            i++;
+            int sign = 1;
+            if (i < stop && (at(i) == '-' || at(i) == '+')) {
+                sign = at(i) == '-' ? -1 : 1;
+                i++;
+            }
+            if (i >= stop || !isDigit(at(i))) {
+                throw UNSUPPORTED;
+            }
+            int e = 0;
+            while (i < stop && isDigit(at(i))) {
+                if (e < 10000) {
+                    e = e * 10 + (at(i) - '0');
+                }
+                i++;
+            }
+            exponent += sign * e;
+        }
+
+        while (i < stop && isSpace(at(i))) {
+            i++;
+        }
+        if (i != stop) {
+            throw UNSUPPORTED;                // Unidades ("px", "%") u otros caracteres
+        }
+
+        double value = mantissa;
+        if (exponent > 0 && exponent < POW10.length) {
+            value *= POW10[exponent];
+        } else if (exponent < 0 && -exponent < POW10.length) {
+            value /= POW10[-exponent];
+        } else if (exponent != 0) {
+            value *= Math.pow(10, exponent);
+        }
+        return negative ? -value : value;
+    }
+
+    // Revisa que la declaración XML no pida una codificación distinta de UTF-8
+    private void checkEncoding(int start, int stop) throws Unsupported {
+        for (int i = start; i + ENCODING.length <= stop; i++) {
+            if (matches(i, i + ENCODING.length, ENCODING)) {
+                pos = i + ENCODING.length;
+                if (!nextValue()) {
+                    throw UNSUPPORTED;
+                }
+                String encoding = string(valStart, valEnd);
+                if (!encoding.equalsIgnoreCase("UTF-8") && !encoding.equalsIgnoreCase("US-ASCII")) {
+                    throw UNSUPPORTED;
+                }
+                return;
+            }
+        }
+    }
+
+    // Lee el siguiente atributo; devuelve false al llegar al final de la etiqueta
+    private boolean nextAttribute() throws Unsupported {
+        skipSpaces();
+
+        byte b = at(pos);
+        if (b == '>') {
+            pos++;
+            selfClosing = false;
+            return false;
+        }
+        if (b == '/') {
+            if (at(pos + 1) != '>') {
+                throw UNSUPPORTED;
+            }
+            pos += 2;
+            selfClosing = true;
+            return false;
+        }
+
+        nameStart = pos;
+        while (!isNameEnd(at(pos)) && at(pos) != '=') {
+            pos++;
+        }
+        nameEnd = pos;
+        if (nameEnd == nameStart || !nextValue()) {
+            throw UNSUPPORTED;
+        }
+        return true;
+    }
+
+    // Lee ="valor" a partir de la posición actual
+    private boolean nextValue() throws Unsupported {
+        skipSpaces();
+        if (at(pos) != '=') {
+            return false;
+        }
+        pos++;
+        skipSpaces();
+
+        byte quote = at(pos);
+        if (quote != '"' && quote != '\'') {
+            return false;
+        }
+        pos++;
+        valStart = pos;
+        while (at(pos) != quote) {
+            pos++;
+        }
+        valEnd = pos;
+        pos++;
+        return true;
+    }
+
+    private void skipAttributes() throws Unsupported {
+        while (nextAttribute()) {
+            // Atributos de elementos que no se dibujan
+        }
+    }
+
+    private int attributeId() {
+        for (int id = 0; id < ATTRIBUTES.length; id++) {
+            if (matches(nameStart, nameEnd, ATTRIBUTES[id])) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private int figureKind(int start, int stop) {
+        for (int kind = 0; kind < FIGURES.length; kind++) {
+            if (matches(start, stop, FIGURES[kind])) {
+                return kind;
+            }
+        }
+        return -1;
+    }
+
+    // Compara los bytes [start, stop) con un nombre
+    private boolean matches(int start, int stop, byte[] name) {
+        if (stop - start != name.length) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (buf.get(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Solo se crean Strings para texto, nombres de color y fuentes
+    private String string(int start, int stop) throws Unsupported {
+        byte[] bytes = new byte[stop - start];
+        buf.get(start, bytes);
+        for (byte b : bytes) {
+            if (b == '&') {
+                throw UNSUPPORTED;            // Referencias a entidades
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(char c, int from) throws Unsupported {
+        for (int i = from; i < end; i++) {
+            if (buf.get(i) == c) {
+                return i;
+            }
+        }
+        throw UNSUPPORTED;
+    }
+
+    private int indexOf(char first, char second, int from) throws Unsupported {
+        for (int i = from; i + 1 < end; i++) {
+            if (buf.get(i) == first && buf.get(i + 1) == second) {
+                return i;
+            }
+        }
+        throw UNSUPPORTED;
+    }
+
+    private byte at(int i) throws Unsupported {
+        if (i >= end) {
+            throw UNSUPPORTED;                // Archivo incompleto
+        }
+        return buf.get(i);
+    }
+
+    private void skipSpaces() throws Unsupported {
+        while (isSpace(at(pos))) {
+            pos++;
+        }
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return isSpace(b) || b == '>' || b == '/';
+    }
+
+    private static byte[] bytes(String name) {
+        return name.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,320 @@
+// Figuras de un dibujo SVG ya interpretadas, listas para dibujarse sin DOM
+package svg_viewer;
+
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/*
+ Las figuras no se guardan como objetos: cada atributo es una columna de primitivos (una posición
+ por figura), así diez millones de figuras no generan diez millones de objetos para el GC.
+ Con -Dsvg.offheap=true las columnas se guardan fuera del heap, en buffers directos
+ (su límite lo da -XX:MaxDirectMemorySize).
+
+ Los colores se guardan como ARGB dentro de las columnas; los objetos Color se crean al dibujar,
+ en una tabla de tamaño fijo por hilo (ShapePool). Las fuentes se comparten: solo hay un Font por
+ combinación distinta de familia, estilo y tamaño. Lo único que crece con el número de figuras
+ dentro del heap es el String de cada texto.
+*/
+public class SVGScene {
+
+    // Tipos de figura (bits bajos de la columna info)
+    static final int LINE = 0;
+    static final int RECT = 1;
+    static final int ELLIPSE = 2;
+    static final int POLYLINE = 3;
+    static final int TEXT = 4;
+
+    private static final int KIND = 0xff;
+    private static final int ROUNDED = 0x100;  // Rectángulo con esquinas redondeadas
+    private static final int FONT_SHIFT = 9;   // En los textos, el resto de info es el índice en fonts
+
+    static final int NO_COLOR = 0;             // ARGB que indica "sin color"
+
+    private final int width;   // ancho del dibujo
+    private final int height;  // alto del dibujo
+
+    // Columnas (una posición por figura)
+    private final IntColumn info;          // Tipo de figura y banderas
+    private final FloatColumn a, b, c, d;  // Geometría (depende del tipo de figura)
+    private final IntColumn fill;          // ARGB, NO_COLOR = sin relleno
+    private final IntColumn stroke;        // ARGB, NO_COLOR = conservar el color actual
+    private final FloatColumn strokeWidth; // NaN = conservar el grosor actual
+    private final IntColumn ref;           // Posición en radii, vertices o texts según el tipo
+
+    private final FloatColumn radii;       // rx, ry de los rectángulos redondeados
+    private final IntColumn vertices;      // Puntos de todos los polylines: n, x0, y0, x1, y1, ...
+    private final ArrayList<String> texts = new ArrayList<>();
+
+    // Fuentes distintas usadas por los textos
+    private final ArrayList<Font> fonts = new ArrayList<>();
+    private final HashMap<Font, Integer> fontIndex = new HashMap<>();
+
+    private int maxPoints;  // Puntos del polyline más largo
+    private float maxStrokeWidth = 1;  // Contorno más grueso (1 = grosor inicial de Graphics2D)
+
+    public SVGScene(int width, int height) {
+        this(width, height, Boolean.getBoolean("svg.offheap"));
+    }
+
+    public SVGScene(int width, int height, boolean offHeap) {
+        this.width = width;
+        this.height = height;
+
+        info = new IntColumn(offHeap);
+        a = new FloatColumn(offHeap);
+        b = new FloatColumn(offHeap);
+        c = new FloatColumn(offHeap);
+        d = new FloatColumn(offHeap);
+        fill = new IntColumn(offHeap);
+        stroke = new IntColumn(offHeap);
+        strokeWidth = new FloatColumn(offHeap);
+        ref = new IntColumn(offHeap);
+        radii = new FloatColumn(offHeap);
+        vertices = new IntColumn(offHeap);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int size() {
+        return info.size();
+    }
+
+    void addLine(double x1, double y1, double x2, double y2, int strokeColor, float sw) {
+        add(LINE, x1, y1, x2, y2, NO_COLOR, strokeColor, sw, 0);
+    }
+
+    void addRect(double x, double y, double w, double h, double rx, double ry, boolean rounded,
+            int fillColor, int strokeColor, float sw) {
+        if (rounded) {
+            add(RECT | ROUNDED, x, y, w, h, fillColor, strokeColor, sw, radii.size());
+            radii.add((float) rx);
+            radii.add((float) ry);
+        } else {
+            add(RECT, x, y, w, h, fillColor, strokeColor, sw, 0);
+        }
+    }
+
+    void addEllipse(double cx, double cy, double rx, double ry, int fillColor, int strokeColor, float sw) {
+        add(ELLIPSE, cx, cy, rx, ry, fillColor, strokeColor, sw, 0);
+    }
+
+    // coords tiene los puntos intercalados: x0, y0, x1, y1, ...
+    void addPolyline(int[] coords, int n, int strokeColor, float sw) {
+        add(POLYLINE, 0, 0, 0, 0, NO_COLOR, strokeColor, sw, vertices.size());
+        vertices.add(n);
+        for (int i = 0; i < 2 * n; i++) {
+            vertices.add(coords[i]);
+        }
+        maxPoints = Math.max(maxPoints, n);
+    }
+
+    void addText(String text, int x, int y, Font font, int fillColor) {
+        Integer index = fontIndex.get(font);
+        if (index == null) {
+            index = fonts.size();
+            fonts.add(font);
+            fontIndex.put(font, index);
+        }
+
+        add(TEXT | (index << FONT_SHIFT), x, y, 0, 0, fillColor, NO_COLOR, Float.NaN, texts.size());
+        texts.add(text);
+    }
+
+    private void add(int kind, double x0, double y0, double x1, double y1, int fillColor, int strokeColor,
+            float sw, int reference) {
+        info.add(kind);
+        a.add((float) x0);
+        b.add((float) y0);
+        c.add((float) x1);
+        d.add((float) y1);
+        fill.add(fillColor);
+        stroke.add(strokeColor);
+        strokeWidth.add(sw);
+        ref.add(reference);
+
+        if (sw > maxStrokeWidth) {
+            maxStrokeWidth = sw;
+        }
+    }
+
+    // Libera el espacio sobrante de las columnas cuando ya se cargaron todas las figuras
+    void compact() {
+        info.compact();
+        a.compact();
+        b.compact();
+        c.compact();
+        d.compact();
+        fill.compact();
+        stroke.compact();
+        strokeWidth.compact();
+        ref.compact();
+        radii.compact();
+        vertices.compact();
+        texts.trimToSize();
+    }
+
+    // Dibuja todas las figuras, en el mismo orden en que aparecen en el archivo
+    public void paint(Graphics2D g2d) {
+        paint(g2d, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /*
+     Dibuja solo las figuras que tocan la franja horizontal [top, bottom] (coordenadas del dibujo);
+     SVGExporter la usa para no dibujar el dibujo completo en cada franja. Las figuras que se saltan
+     no se dibujan, pero el color y el grosor que dejarían puestos se aplican antes de la siguiente
+     figura visible, porque las figuras sin stroke o sin stroke-width conservan los actuales.
+    */
+    public void paint(Graphics2D g2d, double top, double bottom) {
+        ShapePool pool = ShapePool.get();  // Figuras reutilizables de este hilo
+        int[] xs = pool.xs(maxPoints);     // Puntos del polyline actual
+        int[] ys = pool.ys(maxPoints);
+
+        boolean cull = top > Double.NEGATIVE_INFINITY || bottom < Double.POSITIVE_INFINITY;
+        // Con uniones en punta (límite 10) el contorno puede salir hasta 5 grosores de la figura
+        double margin = 5 * maxStrokeWidth + 1;
+        top -= margin;
+        bottom += margin;
+
+        // Color y grosor de las figuras saltadas que aún no se aplican
+        boolean colorPending = false;
+        int pendingColor = NO_COLOR;
+        float pendingWidth = Float.NaN;
+
+        int n = size();
+        for (int i = 0; i < n; i++) {
+            int kind = info.get(i);
+
+            if (cull && !intersects(i, kind, top, bottom)) {
+                if (stroke.get(i) != NO_COLOR) {
+                    colorPending = true;
+                    pendingColor = stroke.get(i);
+                } else if (fill.get(i) != NO_COLOR) {
+                    colorPending = true;
+                    pendingColor = fill.get(i);
+                }
+                if (!Float.isNaN(strokeWidth.get(i))) {
+                    pendingWidth = strokeWidth.get(i);
+                }
+                continue;
+            }
+            if (colorPending) {
+                g2d.setColor(pool.color(pendingColor));
+                colorPending = false;
+            }
+            if (!Float.isNaN(pendingWidth)) {
+                g2d.setStroke(pool.stroke(pendingWidth));
+                pendingWidth = Float.NaN;
+            }
+
+            switch (kind & KIND) {
+                case LINE:
+                    g2d.setStroke(pool.stroke(strokeWidth.get(i)));
+                    if (stroke.get(i) != NO_COLOR) {
+                        g2d.setColor(pool.color(stroke.get(i)));
+                    }
+                    pool.line.setLine((int) a.get(i), (int) b.get(i), (int) c.get(i), (int) d.get(i));
+                    g2d.draw(pool.line);
+                    break;
+                case RECT:
+                    if ((kind & ROUNDED) != 0) {
+                        int r = ref.get(i);
+                        pool.roundRect.setRoundRect(a.get(i), b.get(i), c.get(i), d.get(i), radii.get(r), radii.get(r + 1));
+                        fillAndOutline(i, pool.roundRect, pool, g2d);
+                    } else {
+                        pool.rect.setRect(a.get(i), b.get(i), c.get(i), d.get(i));
+                        fillAndOutline(i, pool.rect, pool, g2d);
+                    }
+                    break;
+                case ELLIPSE:
+                    float rx = c.get(i);
+                    float ry = d.get(i);
+                    pool.ellipse.setFrame(a.get(i) - rx, b.get(i) - ry, rx * 2, ry * 2);
+                    fillAndOutline(i, pool.ellipse, pool, g2d);
+                    break;
+                case POLYLINE:
+                    int offset = ref.get(i);
+                    int points = vertices.get(offset);
+                    for (int p = 0; p < points; p++) {
+                        xs[p] = vertices.get(offset + 1 + 2 * p);
+                        ys[p] = vertices.get(offset + 2 + 2 * p);
+                    }
+                    setOutline(i, pool, g2d);
+                    g2d.drawPolyline(xs, ys, points);
+                    break;
+                case TEXT:
+                    if (fill.get(i) != NO_COLOR) {
+                        g2d.setColor(pool.color(fill.get(i)));
+                    }
+                    g2d.setFont(fonts.get(kind >>> FONT_SHIFT));
+                    g2d.drawString(texts.get(ref.get(i)), (int) a.get(i), (int) b.get(i));
+                    break;
+            }
+        }
+    }
+
+    // ¿La figura i (sin contar su contorno) toca la franja [top, bottom]?
+    private boolean intersects(int i, int kind, double top, double bottom) {
+        float y0, y1;
+        switch (kind & KIND) {
+            case LINE:
+                y0 = Math.min(b.get(i), d.get(i));
+                y1 = Math.max(b.get(i), d.get(i));
+                break;
+            case RECT:
+                y0 = b.get(i);
+                y1 = b.get(i) + d.get(i);
+                break;
+            case ELLIPSE:
+                y0 = b.get(i) - d.get(i);
+                y1 = b.get(i) + d.get(i);
+                break;
+            case POLYLINE:
+                int offset = ref.get(i);
+                int points = vertices.get(offset);
+                y0 = Float.POSITIVE_INFINITY;
+                y1 = Float.NEGATIVE_INFINITY;
+                for (int p = 0; p < points; p++) {
+                    int y = vertices.get(offset + 2 + 2 * p);
+                    y0 = Math.min(y0, y);
+                    y1 = Math.max(y1, y);
+                }
+                break;
+            default:
+                // Texto: algunos glifos salen del tamaño nominal de la fuente, se deja el doble
+                float size = fonts.get(kind >>> FONT_SHIFT).getSize2D();
+                y0 = b.get(i) - 2 * size;
+                y1 = b.get(i) + 2 * size;
+                break;
+        }
+        return y1 >= top && y0 <= bottom;
+    }
+
+    private void fillAndOutline(int i, Shape shape, ShapePool pool, Graphics2D g2d) {
+        if (fill.get(i) != NO_COLOR) {
+            g2d.setColor(pool.color(fill.get(i)));
+            g2d.fill(shape);
+        }
+        setOutline(i, pool, g2d);
+        g2d.draw(shape);
+    }
+
+    // Grosor y color del contorno (si no se dieron, se conservan los actuales)
+    private void setOutline(int i, ShapePool pool, Graphics2D g2d) {
+        float sw = strokeWidth.get(i);
+        if (!Float.isNaN(sw)) {
+            g2d.setStroke(pool.stroke(sw));
+        }
+        if (stroke.get(i) != NO_COLOR) {
+            g2d.setColor(pool.color(stroke.get(i)));
+        }
+    }
+}
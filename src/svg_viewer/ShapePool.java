@@ -0,0 +1,72 @@
+// Figuras, colores y trazos reutilizables para no crear objetos en cada repintado (una copia por hilo)
+package svg_viewer;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+
+final class ShapePool {
+
+    private static final ThreadLocal<ShapePool> POOL = ThreadLocal.withInitial(ShapePool::new);
+
+    final Line2D.Double line = new Line2D.Double();
+    final Rectangle2D.Double rect = new Rectangle2D.Double();
+    final RoundRectangle2D.Double roundRect = new RoundRectangle2D.Double();
+    final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+
+    // Puntos de un polyline (crecen al tamaño del polyline más largo)
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+
+    // Colores ya creados: tabla de tamaño fijo, si dos colores caen en el mismo lugar se reemplaza
+    private final Color[] colors = new Color[4096];
+
+    // Trazos ya creados, con el mismo esquema que los colores
+    private final BasicStroke[] strokes = new BasicStroke[256];
+
+    private ShapePool() {
+    }
+
+    static ShapePool get() {
+        return POOL.get();
+    }
+
+    int[] xs(int n) {
+        if (xs.length < n) {
+            xs = new int[n];
+        }
+        return xs;
+    }
+
+    int[] ys(int n) {
+        if (ys.length < n) {
+            ys = new int[n];
+        }
+        return ys;
+    }
+
+    Color color(int argb) {
+        int slot = (argb * 0x9E3779B9) >>> 20;  // 12 bits: 0 .. colors.length - 1
+        Color color = colors[slot];
+        if (color == null || color.getRGB() != argb) {
+            color = new Color(argb, true);
+            colors[slot] = color;
+        }
+        return color;
+    }
+
+    // Igual que new BasicStroke(width)
+    BasicStroke stroke(float width) {
+        int bits = Float.floatToIntBits(width);
+        int slot = (bits * 0x9E3779B9) >>> 24;  // 8 bits: 0 .. strokes.length - 1
+        BasicStroke stroke = strokes[slot];
+        if (stroke == null || Float.floatToIntBits(stroke.getLineWidth()) != bits) {
+            stroke = new BasicStroke(width);
+            strokes[slot] = stroke;
+        }
+        return stroke;
+    }
+}
@@ -0,0 +1,73 @@
+package svg_viewer;
+
+import com.sun.management.ThreadMXBean;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+
+/*
+ Un repintado de la escena ya cargada no debe crear ningún objeto. Se revisan líneas, rectángulos
+ y textos de una sola fuente. Los círculos, los rectángulos redondeados, los polylines y el cambio
+ entre fuentes distintas todavía crean objetos dentro de Java2D (200 a 300 bytes por repintado),
+ así que no se incluyen.
+*/
+public class SVGSceneTest {
+
+    private static final int WARMUP_FRAMES = 5000;  // Hasta que el JIT compila el ciclo de paint
+    private static final int FRAMES = 100;
+    private static final int ATTEMPTS = 10;
+
+    @Test
+    public void paintLinesDoesNotAllocate() throws IOException {
+        assertEquals("bytes creados en " + FRAMES + " repintados", 0, allocatedBytes("lines.svg"));
+    }
+
+    @Test
+    public void paintRectsAndTextDoesNotAllocate() throws IOException {
+        assertEquals("bytes creados en " + FRAMES + " repintados", 0, allocatedBytes("test/svg_viewer/figures.svg"));
+    }
+
+    /*
+     Bytes creados por FRAMES repintados seguidos. El JIT crea objetos de vez en cuando mientras
+     termina de compilar, así que se mide varias veces y basta con una medición en cero; si paint
+     creara aunque fuera un objeto por repintado, ninguna lo sería.
+    */
+    private static long allocatedBytes(String path) throws IOException {
+        SVGScene scene = SVGLoader.load(new File(path));
+        assertNotNull(path + " debe cargarse sin DOM", scene);
+
+        BufferedImage image = new BufferedImage(scene.getWidth(), scene.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long id = Thread.currentThread().getId();
+
+        // Calentar: tablas de colores y trazos del hilo y compilación del JIT
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            scene.paint(g2);
+        }
+
+        long bytes = 0;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            long before = threads.getThreadAllocatedBytes(id);
+            for (int i = 0; i < FRAMES; i++) {
+                scene.paint(g2);
+            }
+            bytes = threads.getThreadAllocatedBytes(id) - before;
+            if (bytes == 0) {
+                break;
+            }
+        }
+
+        g2.dispose();
+        return bytes;
+    }
+}